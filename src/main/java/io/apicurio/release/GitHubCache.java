@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apicurio.release;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+
+/**
+ * Cache of GitHub API results, shared by all release jobs running in the same JVM (so it must
+ * be thread safe).  Results that do not change once they exist (e.g. the creation date of a
+ * release tag, or the content of a file at a given tag) are kept forever.  The pull requests
+ * linked to an issue can change (e.g. when an issue is reopened and later closed by another
+ * pull request), so those are only kept for a limited time, in a size bounded LRU.  Only
+ * successful lookups are cached.
+ */
+public class GitHubCache {
+
+    /**
+     * Loads a value when it is not already cached.
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws Exception;
+    }
+
+    private static final int MAX_LINKED_PULL_REQUESTS = 5000;
+    private static final long LINKED_PULL_REQUESTS_TTL = TimeUnit.MINUTES.toMillis(30);
+
+    private final Map<String, String> releaseDates = new ConcurrentHashMap<>();
+    private final Map<String, String> dependencyVersions = new ConcurrentHashMap<>();
+    @SuppressWarnings("serial")
+    private final Map<String, CachedValue<JSONArray>> linkedPullRequests = new LinkedHashMap<String, CachedValue<JSONArray>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedValue<JSONArray>> eldest) {
+            return size() > MAX_LINKED_PULL_REQUESTS;
+        }
+    };
+
+    /**
+     * Gets the release date of the given release tag, loading it if necessary.
+     * @param org
+     * @param repo
+     * @param releaseTag
+     * @param loader
+     * @throws Exception
+     */
+    public String getReleaseDate(String org, String repo, String releaseTag, Loader<String> loader) throws Exception {
+        return get(releaseDates, org + "/" + repo + ":" + releaseTag, loader);
+    }
+
+    /**
+     * Gets the version of a dependency found in a package file at the given tag, loading it
+     * if necessary.
+     * @param org
+     * @param repo
+     * @param path
+     * @param tag
+     * @param dependencyName
+     * @param loader
+     * @throws Exception
+     */
+    public String getDependencyVersion(String org, String repo, String path, String tag, String dependencyName,
+            Loader<String> loader) throws Exception {
+        return get(dependencyVersions, org + "/" + repo + ":" + tag + ":" + path + "#" + dependencyName, loader);
+    }
+
+    /**
+     * Gets the pull requests linked to a (closed) issue, or null if not cached.  These are
+     * loaded in batches, so there is no loader.
+     * @param repo the full name of the repository (org/repo)
+     * @param issueNumber
+     */
+    public JSONArray getLinkedPullRequests(String repo, int issueNumber) {
+        String key = repo + "#" + issueNumber;
+        synchronized (linkedPullRequests) {
+            CachedValue<JSONArray> cached = linkedPullRequests.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - cached.cachedOn > LINKED_PULL_REQUESTS_TTL) {
+                linkedPullRequests.remove(key);
+                return null;
+            }
+            return cached.value;
+        }
+    }
+
+    /**
+     * Caches the pull requests linked to a (closed) issue.
+     * @param repo the full name of the repository (org/repo)
+     * @param issueNumber
+     * @param pullRequests
+     */
+    public void putLinkedPullRequests(String repo, int issueNumber, JSONArray pullRequests) {
+        synchronized (linkedPullRequests) {
+            linkedPullRequests.put(repo + "#" + issueNumber, new CachedValue<>(pullRequests));
+        }
+    }
+
+    /**
+     * Removes everything from the cache.
+     */
+    public void clear() {
+        releaseDates.clear();
+        dependencyVersions.clear();
+        synchronized (linkedPullRequests) {
+            linkedPullRequests.clear();
+        }
+    }
+
+    private static String get(Map<String, String> cache, String key, Loader<String> loader) throws Exception {
+        String value = cache.get(key);
+        if (value == null) {
+            value = loader.load();
+            if (value != null) {
+                String existing = cache.putIfAbsent(key, value);
+                if (existing != null) {
+                    value = existing;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * A cached value and when it was cached.
+     */
+    private static class CachedValue<T> {
+
+        private final T value;
+        private final long cachedOn = System.currentTimeMillis();
+
+        CachedValue(T value) {
+            this.value = value;
+        }
+
+    }
+
+}
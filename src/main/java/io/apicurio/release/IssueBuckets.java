@@ -0,0 +1,208 @@
+/*
+ * Copyright 2020 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apicurio.release;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+
+/**
+ * Groups issues into release buckets while keeping memory bounded.  Only the properties needed
+ * to render release notes are kept, and once more than a fixed number of issues are held in
+ * memory they are all appended (as JSON lines) to one temporary file per bucket.  Issues are
+ * read back in the order they were added.
+ */
+public class IssueBuckets implements Closeable {
+
+    public static final int DEFAULT_MAX_IN_MEMORY = 1000;
+
+    private static final String[] RETAINED_PROPERTIES = { "number", "html_url", "title", "pull_request", "user",
+            "assignees", IssueEnricher.LINKED_PULL_REQUESTS };
+
+    private final int maxInMemory;
+    private final List<List<JSONObject>> buffers = new ArrayList<>();
+    private final int[] sizes;
+    private final List<Closeable> openReaders = new ArrayList<>();
+    private File spillDir;
+    private int inMemory;
+
+    /**
+     * Constructor.
+     * @param bucketCount
+     * @param maxInMemory
+     */
+    public IssueBuckets(int bucketCount, int maxInMemory) {
+        this.maxInMemory = maxInMemory;
+        this.sizes = new int[bucketCount];
+        for (int idx = 0; idx < bucketCount; idx++) {
+            buffers.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Adds an issue to a bucket.
+     * @param bucket
+     * @param issue
+     * @throws IOException
+     */
+    public void add(int bucket, JSONObject issue) throws IOException {
+        buffers.get(bucket).add(new JSONObject(issue, RETAINED_PROPERTIES));
+        sizes[bucket]++;
+        inMemory++;
+        if (inMemory >= maxInMemory) {
+            spill();
+        }
+    }
+
+    /**
+     * @return the number of buckets
+     */
+    public int getBucketCount() {
+        return sizes.length;
+    }
+
+    /**
+     * Returns the number of issues in a bucket.
+     * @param bucket
+     */
+    public int size(int bucket) {
+        return sizes[bucket];
+    }
+
+    /**
+     * Returns the issues in a bucket.  Spilled issues are streamed back from disk, so iterating
+     * does not load the whole bucket into memory.
+     * @param bucket
+     */
+    public Iterable<JSONObject> get(int bucket) {
+        return () -> new BucketIterator(bucket);
+    }
+
+    /**
+     * Deletes any temporary files.
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        for (Closeable reader : openReaders) {
+            reader.close();
+        }
+        openReaders.clear();
+        if (spillDir != null) {
+            FileUtils.deleteDirectory(spillDir);
+            spillDir = null;
+        }
+    }
+
+    /**
+     * Appends every in-memory issue to its bucket's file.
+     * @throws IOException
+     */
+    private void spill() throws IOException {
+        if (spillDir == null) {
+            spillDir = Files.createTempDirectory("release-notes-").toFile();
+        }
+        for (int bucket = 0; bucket < buffers.size(); bucket++) {
+            List<JSONObject> buffer = buffers.get(bucket);
+            if (buffer.isEmpty()) {
+                continue;
+            }
+            try (Writer writer = Files.newBufferedWriter(spillFile(bucket).toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (JSONObject issue : buffer) {
+                    issue.write(writer);
+                    writer.write('\n');
+                }
+            }
+            buffer.clear();
+        }
+        inMemory = 0;
+    }
+
+    private File spillFile(int bucket) {
+        return new File(spillDir, "bucket-" + bucket + ".jsonl");
+    }
+
+    /**
+     * Iterates a bucket's spill file (if any), then its in-memory buffer.
+     */
+    private class BucketIterator implements Iterator<JSONObject> {
+
+        private final Iterator<JSONObject> buffered;
+        private BufferedReader reader;
+        private String nextLine;
+
+        BucketIterator(int bucket) {
+            this.buffered = buffers.get(bucket).iterator();
+            if (spillDir != null && spillFile(bucket).isFile()) {
+                try {
+                    reader = Files.newBufferedReader(spillFile(bucket).toPath(), StandardCharsets.UTF_8);
+                    openReaders.add(reader);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                advance();
+            }
+        }
+
+        private void advance() {
+            try {
+                nextLine = reader.readLine();
+                if (nextLine == null) {
+                    reader.close();
+                    openReaders.remove(reader);
+                    reader = null;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return reader != null || buffered.hasNext();
+        }
+
+        @Override
+        public JSONObject next() {
+            if (reader != null) {
+                JSONObject rval = new JSONObject(nextLine);
+                advance();
+                return rval;
+            }
+            if (!buffered.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return buffered.next();
+        }
+
+    }
+
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2020 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apicurio.release;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+import com.mashape.unirest.http.Unirest;
+
+/**
+ * Adds the pull requests that fixed each issue (under the {@link #LINKED_PULL_REQUESTS} key) so
+ * that the release notes can link them and credit their authors.  Issue authors and assignees
+ * are already part of the issue JSON; linked pull requests are looked up with GitHub GraphQL
+ * queries that each cover up to {@link #BATCH_SIZE} issues, so the number of round trips does
+ * not grow with every issue.  Results are kept in the shared {@link GitHubCache} (unless no
+ * cache is given).  Queries run on a small thread pool that lives until the enricher is closed.
+ */
+public class IssueEnricher implements Closeable {
+
+    public static final String LINKED_PULL_REQUESTS = "linked_pull_requests";
+
+    private static final String GRAPHQL_URL = "https://api.github.com/graphql";
+    private static final int BATCH_SIZE = 50;
+    private static final int MAX_CONCURRENT_QUERIES = 4;
+    private static final String TIMELINE_QUERY = "timelineItems(itemTypes: [CLOSED_EVENT, CROSS_REFERENCED_EVENT], last: 25) { nodes { "
+            + "__typename "
+            + "... on ClosedEvent { closer { __typename ... on PullRequest { number url author { __typename login } } } } "
+            + "... on CrossReferencedEvent { willCloseTarget source { __typename ... on PullRequest { number url merged author { __typename login } } } } "
+            + "} }";
+
+    /**
+     * Returns everyone who contributed to an issue: its author, its assignees, and the authors
+     * of the pull requests linked to it.  Bots are left out.
+     * @param issue
+     */
+    public static Set<String> getContributors(JSONObject issue) {
+        Set<String> rval = new LinkedHashSet<>();
+        addContributor(rval, issue.optJSONObject("user"));
+        JSONArray assignees = issue.optJSONArray("assignees");
+        if (assignees != null) {
+            for (int idx = 0; idx < assignees.length(); idx++) {
+                addContributor(rval, assignees.optJSONObject(idx));
+            }
+        }
+        for (JSONObject pullRequest : getLinkedPullRequests(issue)) {
+            // Bot authors are never recorded (see toPullRequest).
+            String author = pullRequest.optString("author", null);
+            if (author != null) {
+                rval.add(author);
+            }
+        }
+        return rval;
+    }
+
+    /**
+     * Returns the pull requests linked to an issue (empty if the issue was not enriched).
+     * @param issue
+     */
+    public static List<JSONObject> getLinkedPullRequests(JSONObject issue) {
+        List<JSONObject> rval = new ArrayList<>();
+        JSONArray pullRequests = issue.optJSONArray(LINKED_PULL_REQUESTS);
+        if (pullRequests != null) {
+            for (int idx = 0; idx < pullRequests.length(); idx++) {
+                rval.add(pullRequests.getJSONObject(idx));
+            }
+        }
+        return rval;
+    }
+
+    private static void addContributor(Set<String> contributors, JSONObject user) {
+        if (user != null && !isBot(user)) {
+            String login = user.optString("login", null);
+            if (login != null) {
+                contributors.add(login);
+            }
+        }
+    }
+
+    /**
+     * Tests whether a user is a bot.  REST users have a "type", GraphQL actors a "__typename".
+     * @param user
+     */
+    private static boolean isBot(JSONObject user) {
+        return "Bot".equals(user.optString("type")) || "Bot".equals(user.optString("__typename"));
+    }
+
+    private final RequestExecutor requests;
+    private final GitHubCache cache;
+    private final String githubPAT;
+    private final PrintStream out;
+    private ExecutorService executor;
+
+    /**
+     * Constructor.
+     * @param requests
+     * @param cache the cache to use, or null to always query
+     * @param githubPAT
+     * @param out
+     */
+    public IssueEnricher(RequestExecutor requests, GitHubCache cache, String githubPAT, PrintStream out) {
+        this.requests = requests;
+        this.cache = cache;
+        this.githubPAT = githubPAT;
+        this.out = out;
+    }
+
+    /**
+     * Adds the linked pull requests to each of the given issues.
+     * @param issues
+     * @throws Exception
+     */
+    public void enrich(List<JSONObject> issues) throws Exception {
+        // Figure out which issues still need a lookup, grouped by repository.
+        Map<String, List<JSONObject>> toQuery = new LinkedHashMap<>();
+        for (JSONObject issue : issues) {
+            String repo = getRepositoryName(issue);
+            int number = issue.getInt("number");
+            if (issue.has("pull_request")) {
+                // A pull request closed directly (not through an issue) is its own fix.
+                JSONArray self = new JSONArray();
+                self.put(toPullRequest(number, issue.getString("html_url"), issue.optJSONObject("user")));
+                issue.put(LINKED_PULL_REQUESTS, self);
+                continue;
+            }
+            JSONArray cached = cache == null ? null : cache.getLinkedPullRequests(repo, number);
+            if (cached != null) {
+                issue.put(LINKED_PULL_REQUESTS, cached);
+            } else {
+                toQuery.computeIfAbsent(repo, key -> new ArrayList<>()).add(issue);
+            }
+        }
+
+        List<List<JSONObject>> batches = new ArrayList<>();
+        toQuery.values().forEach(repoIssues -> {
+            for (int idx = 0; idx < repoIssues.size(); idx += BATCH_SIZE) {
+                batches.add(repoIssues.subList(idx, Math.min(idx + BATCH_SIZE, repoIssues.size())));
+            }
+        });
+        if (batches.isEmpty()) {
+            return;
+        }
+
+        out.println("Looking up linked pull requests for " + toQuery.values().stream().mapToInt(List::size).sum()
+                + " issues (" + batches.size() + " queries).");
+        ExecutorService executor = getExecutor();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (List<JSONObject> batch : batches) {
+                futures.add(executor.submit(() -> {
+                    enrichBatch(batch);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Stops the query threads.
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(MAX_CONCURRENT_QUERIES, runnable -> {
+                Thread thread = new Thread(runnable, "issue-enricher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Looks up the linked pull requests of a batch of issues (all from the same repository)
+     * with a single GraphQL query.
+     * @param batch
+     * @throws Exception
+     */
+    private void enrichBatch(List<JSONObject> batch) throws Exception {
+        String repo = getRepositoryName(batch.get(0));
+        String[] split = repo.split("/");
+
+        StringBuilder query = new StringBuilder();
+        query.append("query { repository(owner: \"").append(split[0]).append("\", name: \"").append(split[1]).append("\") {");
+        for (JSONObject issue : batch) {
+            int number = issue.getInt("number");
+            query.append(" i").append(number).append(": issue(number: ").append(number).append(") { ")
+                    .append(TIMELINE_QUERY).append(" }");
+        }
+        query.append(" } }");
+
+        JSONObject body = new JSONObject();
+        body.put("query", query.toString());
+
+        // Not hedged: these batch queries are much slower than the GETs the hedging latency is
+        // learned from, and a duplicate would double the GraphQL rate limit cost.
+        HttpResponse<JsonNode> response = requests.send(() -> Unirest.post(GRAPHQL_URL)
+                .header("Accept", "application/json")
+                .header("Content-Type", "application/json")
+                .header("Authorization", "bearer " + githubPAT)
+                .body(body));
+        if (response.getStatus() != 200) {
+            throw new Exception("Failed to query linked pull requests: " + response.getStatusText());
+        }
+        JSONObject result = response.getBody().getObject();
+        JSONObject data = result.optJSONObject("data");
+        if (data == null || data.optJSONObject("repository") == null) {
+            throw new Exception("Failed to query linked pull requests: " + result.optJSONArray("errors"));
+        }
+        if (result.has("errors")) {
+            out.println("Some linked pull requests could not be found: " + result.getJSONArray("errors"));
+        }
+
+        JSONObject repository = data.getJSONObject("repository");
+        for (JSONObject issue : batch) {
+            int number = issue.getInt("number");
+            JSONObject issueNode = repository.optJSONObject("i" + number);
+            if (issueNode == null) {
+                continue;
+            }
+            JSONArray pullRequests = toPullRequests(issueNode.getJSONObject("timelineItems").getJSONArray("nodes"));
+            issue.put(LINKED_PULL_REQUESTS, pullRequests);
+            if (cache != null) {
+                cache.putLinkedPullRequests(repo, number, pullRequests);
+            }
+        }
+    }
+
+    /**
+     * Extracts the (distinct) pull requests that closed an issue from its timeline.  A cross
+     * reference only counts when its pull request was merged; an open or abandoned pull
+     * request that merely mentions "fixes #N" did not fix anything.
+     * @param timeline
+     */
+    private static JSONArray toPullRequests(JSONArray timeline) {
+        Map<String, JSONObject> rval = new LinkedHashMap<>();
+        for (int idx = 0; idx < timeline.length(); idx++) {
+            JSONObject event = timeline.getJSONObject(idx);
+            JSONObject pullRequest = null;
+            if ("ClosedEvent".equals(event.optString("__typename"))) {
+                pullRequest = event.optJSONObject("closer");
+            } else if (event.optBoolean("willCloseTarget")) {
+                JSONObject source = event.optJSONObject("source");
+                if (source != null && source.optBoolean("merged")) {
+                    pullRequest = source;
+                }
+            }
+            if (pullRequest != null && "PullRequest".equals(pullRequest.optString("__typename"))) {
+                String url = pullRequest.getString("url");
+                rval.put(url, toPullRequest(pullRequest.getInt("number"), url, pullRequest.optJSONObject("author")));
+            }
+        }
+        return new JSONArray(rval.values());
+    }
+
+    private static JSONObject toPullRequest(int number, String url, JSONObject author) {
+        JSONObject rval = new JSONObject();
+        rval.put("number", number);
+        rval.put("html_url", url);
+        if (author != null && author.has("login") && !isBot(author)) {
+            rval.put("author", author.getString("login"));
+        }
+        return rval;
+    }
+
+    /**
+     * Returns the full name (org/repo) of the repository an issue belongs to.
+     * @param issue
+     */
+    private static String getRepositoryName(JSONObject issue) {
+        String repositoryUrl = issue.getString("repository_url");
+        return repositoryUrl.substring(repositoryUrl.indexOf("/repos/") + "/repos/".length());
+    }
+
+}
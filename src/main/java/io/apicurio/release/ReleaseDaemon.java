@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apicurio.release;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.mashape.unirest.http.Unirest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A small local HTTP front end for the {@link ReleaseService}.  Only listens on the loopback
+ * interface.  Every request must carry an "Authorization: Bearer &lt;token&gt;" header, and
+ * requests sent by a browser (i.e. with an Origin header) are rejected, so that neither other
+ * local users nor web pages can create releases with the operator's PAT.  Supported operations:
+ *
+ * <ul>
+ *   <li>POST /releases - submit a release (JSON body, see {@link ReleaseRequest#fromJson(JSONObject)})</li>
+ *   <li>GET /releases - list all jobs</li>
+ *   <li>GET /releases/{id} - get a job, including its log</li>
+ *   <li>DELETE /releases/{id} - cancel a job</li>
+ * </ul>
+ */
+public class ReleaseDaemon {
+
+    private static final String CONTEXT = "/releases";
+
+    private final ReleaseService service;
+    private final int port;
+    private final String defaultGithubPAT;
+    private final byte[] token;
+    private final boolean tokenGenerated;
+    private HttpServer server;
+
+    /**
+     * Constructor.
+     * @param service
+     * @param port
+     * @param token the bearer token clients must send (generated when null)
+     * @param defaultGithubPAT used for submitted releases that do not include their own PAT
+     */
+    public ReleaseDaemon(ReleaseService service, int port, String token, String defaultGithubPAT) {
+        this.service = service;
+        this.port = port;
+        this.defaultGithubPAT = defaultGithubPAT;
+        this.tokenGenerated = token == null || token.trim().isEmpty();
+        this.token = (tokenGenerated ? generateToken() : token.trim()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Starts listening for requests.
+     * @throws IOException
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(CONTEXT, this::handle);
+        server.start();
+        System.out.println("Release daemon listening on http://localhost:" + server.getAddress().getPort() + CONTEXT);
+        if (tokenGenerated) {
+            System.out.println("Daemon token (send as 'Authorization: Bearer <token>'): " + new String(token, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Stops listening and shuts down the release service.  The daemon owns its JVM, so it
+     * also shuts down the (process-wide) HTTP clients.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+            server = null;
+        }
+        try {
+            service.close();
+            Unirest.shutdown();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (exchange.getRequestHeaders().containsKey("Origin")) {
+                sendError(exchange, 403, "Cross-origin requests are not allowed.");
+                return;
+            }
+            if (!isAuthorized(exchange)) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                sendError(exchange, 401, "Missing or invalid bearer token.");
+                return;
+            }
+
+            String method = exchange.getRequestMethod();
+            String id = exchange.getRequestURI().getPath().substring(CONTEXT.length());
+            if (id.startsWith("/")) {
+                id = id.substring(1);
+            }
+
+            if (id.isEmpty()) {
+                if ("GET".equals(method)) {
+                    JSONArray jobs = new JSONArray();
+                    service.getJobs().forEach(job -> jobs.put(job.toJson(false)));
+                    send(exchange, 200, jobs.toString(4));
+                } else if ("POST".equals(method)) {
+                    if (!isJson(exchange)) {
+                        sendError(exchange, 415, "Content-Type must be application/json.");
+                        return;
+                    }
+                    // Only reached by authenticated callers, so the daemon PAT may be used.
+                    ReleaseRequest request = ReleaseRequest.fromJson(new JSONObject(readBody(exchange)));
+                    if (request.getGithubPAT() == null) {
+                        request.setGithubPAT(defaultGithubPAT);
+                    }
+                    ReleaseJob job = service.submit(request);
+                    send(exchange, 202, job.toJson(false).toString(4));
+                } else {
+                    sendError(exchange, 405, "Method not allowed: " + method);
+                }
+            } else {
+                ReleaseJob job = service.getJob(id);
+                if (job == null) {
+                    sendError(exchange, 404, "Release job not found: " + id);
+                } else if ("GET".equals(method)) {
+                    send(exchange, 200, job.toJson(true).toString(4));
+                } else if ("DELETE".equals(method)) {
+                    job.cancel();
+                    send(exchange, 202, job.toJson(false).toString(4));
+                } else {
+                    sendError(exchange, 405, "Method not allowed: " + method);
+                }
+            }
+        } catch (Exception e) {
+            sendError(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Checks the bearer token (in constant time).
+     */
+    private boolean isAuthorized(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return false;
+        }
+        byte[] presented = authorization.substring(7).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(token, presented);
+    }
+
+    private static boolean isJson(HttpExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        return contentType != null && contentType.split(";")[0].trim().equalsIgnoreCase("application/json");
+    }
+
+    private static String generateToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream is = exchange.getRequestBody()) {
+            return IOUtils.toString(is, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        JSONObject error = new JSONObject();
+        error.put("error", message);
+        send(exchange, status, error.toString(4));
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] data = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, data.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(data);
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apicurio.release;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+
+import org.json.JSONObject;
+
+/**
+ * A single release submitted to the {@link ReleaseService}.  Each job has its own
+ * {@link ReleaseTool} instance and its own log, so concurrent jobs never share state.
+ */
+public class ReleaseJob implements Runnable {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id;
+    private final ReleaseRequest request;
+    private final ReleaseTool tool;
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    private final PrintStream out;
+    private final long submittedOn = System.currentTimeMillis();
+
+    private Status status = Status.QUEUED;
+    private long startedOn;
+    private long finishedOn;
+    private String error;
+    private Future<?> future;
+
+    /**
+     * Constructor.
+     * @param id
+     * @param request
+     * @param cache
+     */
+    ReleaseJob(String id, ReleaseRequest request, GitHubCache cache) {
+        this.id = id;
+        this.request = request;
+        try {
+            this.out = new PrintStream(log, true, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        this.tool = new ReleaseTool(request, cache, out);
+    }
+
+    /**
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (status != Status.QUEUED) {
+                return;
+            }
+            status = Status.RUNNING;
+            startedOn = System.currentTimeMillis();
+        }
+        Status result;
+        String message = null;
+        try {
+            tool.release();
+            result = Status.SUCCEEDED;
+        } catch (CancellationException | InterruptedException e) {
+            out.println("Release cancelled.");
+            result = Status.CANCELLED;
+        } catch (Exception e) {
+            e.printStackTrace(out);
+            result = Status.FAILED;
+            message = e.getMessage();
+        }
+        finish(result, message);
+    }
+
+    /**
+     * Cancels the job.  A queued job will never start; a running job stops at its next
+     * step.  Running jobs are not interrupted, so that a request already sent (e.g. creating
+     * the release, or uploading an asset) is not left half done.
+     */
+    public synchronized void cancel() {
+        if (status == Status.QUEUED) {
+            finish(Status.CANCELLED, null);
+            if (future != null) {
+                future.cancel(false);
+            }
+        } else if (status == Status.RUNNING) {
+            tool.cancel();
+        }
+    }
+
+    private synchronized void finish(Status result, String message) {
+        status = result;
+        error = message;
+        finishedOn = System.currentTimeMillis();
+        notifyAll();
+    }
+
+    /**
+     * Blocks until the job has finished.
+     * @throws InterruptedException
+     */
+    public synchronized Status await() throws InterruptedException {
+        while (!status.isFinished()) {
+            wait();
+        }
+        return status;
+    }
+
+    synchronized void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the request
+     */
+    public ReleaseRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * @return the status
+     */
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the error message (only when the job failed)
+     */
+    public synchronized String getError() {
+        return error;
+    }
+
+    /**
+     * @return everything the release has logged so far
+     */
+    public String getLog() {
+        try {
+            return log.toString("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Converts the job to JSON (for status reporting).
+     * @param includeLog
+     */
+    public synchronized JSONObject toJson(boolean includeLog) {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("status", status.name());
+        json.put("request", request.toJson());
+        json.put("submitted-on", submittedOn);
+        if (startedOn > 0) {
+            json.put("started-on", startedOn);
+        }
+        if (finishedOn > 0) {
+            json.put("finished-on", finishedOn);
+        }
+        if (error != null) {
+            json.put("error", error);
+        }
+        if (includeLog) {
+            json.put("log", getLog());
+        }
+        return json;
+    }
+
+}
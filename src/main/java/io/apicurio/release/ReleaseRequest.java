@@ -0,0 +1,340 @@
+/*
+ * Copyright 2020 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apicurio.release;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.json.JSONObject;
+
+/**
+ * The inputs of a single release.  Can be built from the command line (one-shot mode) or
+ * from a JSON document (when submitted to the release daemon).
+ */
+public class ReleaseRequest {
+
+    public static final long DEFAULT_REQUEST_TIMEOUT = 30000;
+    public static final int DEFAULT_HEDGE_PERCENTILE = 95;
+
+    /**
+     * Creates a release request from the parsed command line.
+     * @param cmd
+     */
+    public static ReleaseRequest fromCommandLine(CommandLine cmd) {
+        ReleaseRequest request = new ReleaseRequest();
+        request.setRepository(cmd.getOptionValue("r"));
+        request.setReleaseName(cmd.getOptionValue("n"));
+        request.setPrerelease(cmd.hasOption("p"));
+        request.setReleaseTag(cmd.getOptionValue("t"));
+        request.setPreviousTag(cmd.getOptionValue("o"));
+        request.setGithubPAT(cmd.getOptionValue("g"));
+        request.setArtifact(cmd.getOptionValue("a"));
+        request.setOutputDirectory(cmd.getOptionValue("d"));
+        request.setRequestTimeout(Long.parseLong(cmd.getOptionValue("request-timeout", String.valueOf(DEFAULT_REQUEST_TIMEOUT))));
+        request.setDeadline(Long.parseLong(cmd.getOptionValue("deadline", "0")));
+        request.setHedgePercentile(Integer.parseInt(cmd.getOptionValue("hedge-percentile", String.valueOf(DEFAULT_HEDGE_PERCENTILE))));
+        request.setCumulativeTags(parseTags(cmd.getOptionValue("cumulative-tags")));
+        request.setMaxIssuesInMemory(Integer.parseInt(cmd.getOptionValue("max-issues-in-memory", String.valueOf(IssueBuckets.DEFAULT_MAX_IN_MEMORY))));
+        return request;
+    }
+
+    /**
+     * Creates a release request from a JSON document.  Property names match the long
+     * form of the command line options.
+     * @param json
+     */
+    public static ReleaseRequest fromJson(JSONObject json) {
+        ReleaseRequest request = new ReleaseRequest();
+        request.setRepository(json.optString("repository", null));
+        request.setReleaseName(json.optString("release-name", null));
+        request.setPrerelease(json.optBoolean("prerelease", false));
+        request.setReleaseTag(json.optString("release-tag", null));
+        request.setPreviousTag(json.optString("previous-tag", null));
+        request.setGithubPAT(json.optString("github-pat", null));
+        request.setArtifact(json.optString("artifact", null));
+        request.setOutputDirectory(json.optString("output-directory", null));
+        request.setRequestTimeout(json.optLong("request-timeout", DEFAULT_REQUEST_TIMEOUT));
+        request.setDeadline(json.optLong("deadline", 0));
+        request.setHedgePercentile(json.optInt("hedge-percentile", DEFAULT_HEDGE_PERCENTILE));
+        request.setCumulativeTags(parseTags(json.optString("cumulative-tags", null)));
+        request.setMaxIssuesInMemory(json.optInt("max-issues-in-memory", IssueBuckets.DEFAULT_MAX_IN_MEMORY));
+        return request;
+    }
+
+    private static List<String> parseTags(String tags) {
+        if (tags == null) {
+            return null;
+        }
+        return Arrays.asList(tags.trim().split("\\s*,\\s*"));
+    }
+
+    private String repository;
+    private String releaseName;
+    private boolean prerelease;
+    private String releaseTag;
+    private String previousTag;
+    private String githubPAT;
+    private String artifact;
+    private String outputDirectory;
+    private long requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+    private long deadline;
+    private int hedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+    private List<String> cumulativeTags;
+    private int maxIssuesInMemory = IssueBuckets.DEFAULT_MAX_IN_MEMORY;
+
+    /**
+     * Ensures that all required inputs are present.  Cumulative release notes only need the
+     * repository, the tags and a PAT.
+     * @throws Exception
+     */
+    public void validate() throws Exception {
+        if (repository == null) {
+            throw new Exception("Missing required option: repository (r)");
+        }
+        if (cumulativeTags != null) {
+            if (cumulativeTags.size() < 2) {
+                throw new Exception("At least two release tags are needed for cumulative-tags: " + cumulativeTags);
+            }
+            if (maxIssuesInMemory <= 0) {
+                throw new Exception("Invalid max-issues-in-memory: " + maxIssuesInMemory);
+            }
+        } else if (releaseName == null) {
+            throw new Exception("Missing required option: release-name (n)");
+        }
+        if (cumulativeTags == null && releaseTag == null) {
+            throw new Exception("Missing required option: release-tag (t)");
+        }
+        if (cumulativeTags == null && previousTag == null) {
+            throw new Exception("Missing required option: previous-tag (o)");
+        }
+        if (githubPAT == null) {
+            throw new Exception("Missing required option: github-pat (g)");
+        }
+        if (requestTimeout <= 0) {
+            throw new Exception("Invalid request-timeout: " + requestTimeout);
+        }
+        if (hedgePercentile < 0 || hedgePercentile > 100) {
+            throw new Exception("Invalid hedge-percentile: " + hedgePercentile);
+        }
+    }
+
+    /**
+     * Converts to JSON (for status reporting).  The GitHub PAT is never included.
+     */
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("repository", repository);
+        json.put("release-name", releaseName);
+        json.put("prerelease", prerelease);
+        json.put("release-tag", releaseTag);
+        json.put("previous-tag", previousTag);
+        json.put("artifact", artifact);
+        json.put("output-directory", outputDirectory);
+        json.put("request-timeout", requestTimeout);
+        json.put("deadline", deadline);
+        json.put("hedge-percentile", hedgePercentile);
+        if (cumulativeTags != null) {
+            json.put("cumulative-tags", String.join(",", cumulativeTags));
+            json.put("max-issues-in-memory", maxIssuesInMemory);
+        }
+        return json;
+    }
+
+    /**
+     * @return the repository
+     */
+    public String getRepository() {
+        return repository;
+    }
+
+    /**
+     * @param repository the repository to set
+     */
+    public void setRepository(String repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @return the releaseName
+     */
+    public String getReleaseName() {
+        return releaseName;
+    }
+
+    /**
+     * @param releaseName the releaseName to set
+     */
+    public void setReleaseName(String releaseName) {
+        this.releaseName = releaseName;
+    }
+
+    /**
+     * @return the prerelease
+     */
+    public boolean isPrerelease() {
+        return prerelease;
+    }
+
+    /**
+     * @param prerelease the prerelease to set
+     */
+    public void setPrerelease(boolean prerelease) {
+        this.prerelease = prerelease;
+    }
+
+    /**
+     * @return the releaseTag
+     */
+    public String getReleaseTag() {
+        return releaseTag;
+    }
+
+    /**
+     * @param releaseTag the releaseTag to set
+     */
+    public void setReleaseTag(String releaseTag) {
+        this.releaseTag = releaseTag;
+    }
+
+    /**
+     * @return the previousTag
+     */
+    public String getPreviousTag() {
+        return previousTag;
+    }
+
+    /**
+     * @param previousTag the previousTag to set
+     */
+    public void setPreviousTag(String previousTag) {
+        this.previousTag = previousTag;
+    }
+
+    /**
+     * @return the githubPAT
+     */
+    public String getGithubPAT() {
+        return githubPAT;
+    }
+
+    /**
+     * @param githubPAT the githubPAT to set
+     */
+    public void setGithubPAT(String githubPAT) {
+        this.githubPAT = githubPAT;
+    }
+
+    /**
+     * @return the artifact
+     */
+    public String getArtifact() {
+        return artifact;
+    }
+
+    /**
+     * @param artifact the artifact to set
+     */
+    public void setArtifact(String artifact) {
+        this.artifact = artifact;
+    }
+
+    /**
+     * @return the outputDirectory
+     */
+    public String getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    /**
+     * @param outputDirectory the outputDirectory to set
+     */
+    public void setOutputDirectory(String outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * @return the requestTimeout (in ms)
+     */
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * @param requestTimeout the requestTimeout (in ms) to set
+     */
+    public void setRequestTimeout(long requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * @return the deadline (in seconds, 0 for none)
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @param deadline the deadline (in seconds, 0 for none) to set
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return the hedgePercentile (0 when hedging is disabled)
+     */
+    public int getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    /**
+     * @param hedgePercentile the hedgePercentile (0 disables hedging) to set
+     */
+    public void setHedgePercentile(int hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    /**
+     * @return the cumulativeTags (null unless generating cumulative release notes)
+     */
+    public List<String> getCumulativeTags() {
+        return cumulativeTags;
+    }
+
+    /**
+     * @param cumulativeTags the cumulativeTags (oldest first) to set
+     */
+    public void setCumulativeTags(List<String> cumulativeTags) {
+        this.cumulativeTags = cumulativeTags;
+    }
+
+    /**
+     * @return the maxIssuesInMemory
+     */
+    public int getMaxIssuesInMemory() {
+        return maxIssuesInMemory;
+    }
+
+    /**
+     * @param maxIssuesInMemory the maxIssuesInMemory to set
+     */
+    public void setMaxIssuesInMemory(int maxIssuesInMemory) {
+        this.maxIssuesInMemory = maxIssuesInMemory;
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apicurio.release;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mashape.unirest.http.Unirest;
+
+/**
+ * Embeddable entry point for running many releases in a single long-lived JVM.  Jobs run
+ * concurrently on a bounded thread pool, each with its own {@link ReleaseTool} state.  The
+ * HTTP connection pool (Unirest is process-wide) and the {@link GitHubCache} are shared by
+ * all jobs.
+ */
+public class ReleaseService implements Closeable {
+
+    public static final int DEFAULT_MAX_CONCURRENT_JOBS = 4;
+    private static final int MAX_RETAINED_JOBS = 100;
+
+    private final GitHubCache cache = new GitHubCache();
+    private final ExecutorService executor;
+    private final Map<String, ReleaseJob> jobs = new LinkedHashMap<>();
+    private final AtomicInteger jobCounter = new AtomicInteger();
+    private boolean closed;
+
+    /**
+     * Constructor.
+     * @param maxConcurrentJobs
+     */
+    public ReleaseService(int maxConcurrentJobs) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrentJobs, runnable -> {
+            Thread thread = new Thread(runnable, "release-job-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Submits a release.  Returns immediately; use the returned job to follow its progress.
+     * @param request
+     * @throws Exception if the request is invalid, or the service has been closed
+     */
+    public ReleaseJob submit(ReleaseRequest request) throws Exception {
+        request.validate();
+        synchronized (jobs) {
+            if (closed) {
+                throw new Exception("The release service has been closed.");
+            }
+            String id = String.valueOf(jobCounter.incrementAndGet());
+            ReleaseJob job = new ReleaseJob(id, request, cache);
+            jobs.put(id, job);
+            pruneFinishedJobs();
+            job.setFuture(executor.submit(job));
+            return job;
+        }
+    }
+
+    /**
+     * Gets a job by its id, or null if unknown (or no longer retained).
+     * @param id
+     */
+    public ReleaseJob getJob(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    /**
+     * Gets all retained jobs, oldest first.
+     */
+    public List<ReleaseJob> getJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    /**
+     * Cancels a job.  Returns false if the job is unknown.
+     * @param id
+     */
+    public boolean cancel(String id) {
+        ReleaseJob job = getJob(id);
+        if (job == null) {
+            return false;
+        }
+        job.cancel();
+        return true;
+    }
+
+    /**
+     * @return the cache shared by all jobs
+     */
+    public GitHubCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Cancels all jobs and stops the job threads once running jobs have reached their next
+     * step (they are not interrupted, see {@link ReleaseJob#cancel()}).  The HTTP connection pool is process-wide
+     * (and cannot be restarted once shut down), so it is left to the owner of the JVM to call
+     * {@link Unirest#shutdown()}.
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (jobs) {
+            closed = true;
+        }
+        getJobs().forEach(ReleaseJob::cancel);
+        executor.shutdown();
+    }
+
+    /**
+     * Forgets the oldest finished jobs so that the job list does not grow forever.
+     */
+    private void pruneFinishedJobs() {
+        int excess = jobs.size() - MAX_RETAINED_JOBS;
+        Iterator<ReleaseJob> iterator = jobs.values().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            if (iterator.next().getStatus().isFinished()) {
+                iterator.remove();
+                excess--;
+            }
+        }
+    }
+
+}
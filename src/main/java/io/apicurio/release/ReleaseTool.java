@@ -21,11 +21,19 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import org.apache.commons.cli.CommandLine;
@@ -40,9 +48,11 @@ import org.json.JSONObject;
 import com.mashape.unirest.http.HttpResponse;
 import com.mashape.unirest.http.JsonNode;
 import com.mashape.unirest.http.Unirest;
-import com.mashape.unirest.http.exceptions.UnirestException;
 
 /**
+ * Performs a single release.  All state is held by the instance, so several releases may
+ * run concurrently in the same JVM (see {@link ReleaseService}).  Failures are reported by
+ * throwing from {@link #release()} rather than by exiting the JVM.
  * @author eric.wittmann@gmail.com
  */
 public class ReleaseTool {
@@ -61,14 +71,33 @@ public class ReleaseTool {
         options.addOption("g", "github-pat", true, "The GitHub PAT (for authentication/authorization).");
         options.addOption("a", "artifact", true, "The binary release artifact (full path).");
         options.addOption("d", "output-directory", true, "Where to store output file(s).");
+        options.addOption("s", "serve", true, "Run as a local release daemon listening on the given port.");
+        options.addOption("c", "max-concurrent-jobs", true, "Maximum number of concurrent release jobs (daemon mode only).");
+        options.addOption(null, "daemon-token", true, "Bearer token required by every daemon request (default: randomly generated and printed).");
+        options.addOption(null, "request-timeout", true, "Max time (in ms) to wait for any single HTTP request (default 30000).");
+        options.addOption(null, "deadline", true, "Max time (in seconds) for the whole release (default: none).");
+        options.addOption(null, "hedge-percentile", true, "Latency percentile after which slow GETs are re-sent (default 95, 0 disables).");
+        options.addOption(null, "cumulative-tags", true, "Only generate release notes, for each of these comma separated release tags (oldest first).");
+        options.addOption(null, "max-issues-in-memory", true, "Issues held in memory before spilling to disk (cumulative mode only, default 1000).");
 
         CommandLineParser parser = new DefaultParser();
         CommandLine cmd = parser.parse(options, args);
 
+        if (cmd.hasOption("s")) {
+            int port = Integer.parseInt(cmd.getOptionValue("s"));
+            int maxConcurrentJobs = Integer.parseInt(cmd.getOptionValue("c", String.valueOf(ReleaseService.DEFAULT_MAX_CONCURRENT_JOBS)));
+            ReleaseService service = new ReleaseService(maxConcurrentJobs);
+            ReleaseDaemon daemon = new ReleaseDaemon(service, port, cmd.getOptionValue("daemon-token"), cmd.getOptionValue("g"));
+            daemon.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop));
+            return;
+        }
+
+        boolean cumulative = cmd.hasOption("cumulative-tags");
         if (    !cmd.hasOption("r") ||
-                !cmd.hasOption("n") ||
-                !cmd.hasOption("t") ||
-                !cmd.hasOption("o") ||
+                (!cumulative && !cmd.hasOption("n")) ||
+                (!cumulative && !cmd.hasOption("t")) ||
+                (!cumulative && !cmd.hasOption("o")) ||
                 !cmd.hasOption("g") )
         {
             HelpFormatter formatter = new HelpFormatter();
@@ -77,8 +106,11 @@ public class ReleaseTool {
         }
         
         try {
-            ReleaseTool tool = new ReleaseTool(cmd);
+            ReleaseRequest request = ReleaseRequest.fromCommandLine(cmd);
+            request.validate();
+            ReleaseTool tool = new ReleaseTool(request, new GitHubCache(), System.out);
             tool.release();
+            Unirest.shutdown();
         } catch (Exception e) {
             e.printStackTrace();
             System.exit(1);
@@ -94,43 +126,173 @@ public class ReleaseTool {
     private String githubPAT;
     private String artifact;
     private File outputDir;
+    private List<String> cumulativeTags;
+    private int maxIssuesInMemory;
+
+    private final GitHubCache cache;
+    private final RequestExecutor requests;
+    private final IssueEnricher enricher;
+    private final PrintStream out;
+    private volatile boolean cancelled;
     
     /**
      * Constructor.
-     * @param cmd
+     * @param request
+     * @param cache
+     * @param out
      */
-    public ReleaseTool(CommandLine cmd) {
-        // Arguments (from the command line)
-        repository = cmd.getOptionValue("r");
-        releaseName = cmd.getOptionValue("n");
-        isPrerelease = cmd.hasOption("p");
-        releaseTag = cmd.getOptionValue("t");
-        oldReleaseTag = cmd.getOptionValue("o");
-        githubPAT = cmd.getOptionValue("g");
-        artifact = cmd.getOptionValue("a");
+    public ReleaseTool(ReleaseRequest request, GitHubCache cache, PrintStream out) {
+        repository = request.getRepository();
+        releaseName = request.getReleaseName();
+        isPrerelease = request.isPrerelease();
+        releaseTag = request.getReleaseTag();
+        oldReleaseTag = request.getPreviousTag();
+        githubPAT = request.getGithubPAT();
+        artifact = request.getArtifact();
+        cumulativeTags = request.getCumulativeTags();
+        maxIssuesInMemory = request.getMaxIssuesInMemory();
         outputDir = new File("");
-        if (cmd.hasOption("d")) {
-            outputDir = new File(cmd.getOptionValue("d"));
+        if (request.getOutputDirectory() != null) {
+            outputDir = new File(request.getOutputDirectory());
             if (!outputDir.exists()) {
                 outputDir.mkdirs();
             }
         }
+        this.cache = cache;
+        this.out = out;
+        this.requests = new RequestExecutor(request.getRequestTimeout(), request.getDeadline(), request.getHedgePercentile());
+        this.enricher = new IssueEnricher(requests, cache, githubPAT, out);
     }
 
     /**
      * Do the release.
      * @throws Exception
      */
-    private void release() throws Exception {
-        if ("apicurio-studio".equals(repository)) {
-            releaseStudio();
-        } else if ("apicurito".equals(repository)) {
-            releaseApicurito();
-        } else if ("apicurio-registry".equals(repository)) {
-            releaseRegistry();
-        } else {
-            throw new Exception("Unsupported repository: " + repository);
+    public void release() throws Exception {
+        requests.start();
+        try {
+            if (cumulativeTags != null) {
+                generateCumulativeReleaseNotes();
+            } else if ("apicurio-studio".equals(repository)) {
+                releaseStudio();
+            } else if ("apicurito".equals(repository)) {
+                releaseApicurito();
+            } else if ("apicurio-registry".equals(repository)) {
+                releaseRegistry();
+            } else {
+                throw new Exception("Unsupported repository: " + repository);
+            }
+        } finally {
+            enricher.close();
+            requests.printStats(out);
+        }
+    }
+
+    /**
+     * Requests cancellation of the release.  The release stops at the next step (or page of
+     * issues) with a {@link CancellationException}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Throws if the release has been cancelled, the running thread was interrupted, or the
+     * release deadline has passed.
+     */
+    private void checkCancelled() throws TimeoutException {
+        if (cancelled || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Release " + releaseTag + " of " + repository + " was cancelled.");
+        }
+        requests.checkDeadline();
+    }
+
+    /**
+     * Generates release notes for a series of consecutive release tags (oldest first) in a
+     * single pass over the repository's closed issues.  Each issue is assigned to the release
+     * whose date range contains its closed_at date.  One notes file is written per release,
+     * plus a cumulative file covering the whole range.  No GitHub releases are created.
+     */
+    private void generateCumulativeReleaseNotes() throws Exception {
+        out.println("=========================================");
+        out.println("Generating Cumulative Release Notes for " + repoToName());
+        out.println("            Tags: " + String.join(", ", cumulativeTags));
+        out.println("=========================================");
+
+        List<String> dates = new ArrayList<>();
+        for (String tag : cumulativeTags) {
+            String date = getReleaseDate(org, repository, tag);
+            if (!dates.isEmpty() && dates.get(dates.size() - 1).compareTo(date) >= 0) {
+                throw new Exception("Release tags must be given oldest first: " + tag);
+            }
+            dates.add(date);
+        }
+        final String from = dates.get(0);
+        final String to = dates.get(dates.size() - 1);
+
+        // Bucket N holds the issues closed between tag N and tag N+1.  The shared cache is
+        // bypassed: caching every streamed issue would make heap use grow with history size.
+        try (IssueBuckets buckets = new IssueBuckets(cumulativeTags.size() - 1, maxIssuesInMemory);
+                IssueEnricher streamingEnricher = new IssueEnricher(requests, null, githubPAT, out)) {
+            forEachIssuePage(org, repository, from, issueNodes -> {
+                List<JSONObject> kept = new ArrayList<>();
+                List<Integer> keptBuckets = new ArrayList<>();
+                for (int idx = 0; idx < issueNodes.length(); idx++) {
+                    JSONObject issue = issueNodes.getJSONObject(idx);
+                    String closedOn = issue.getString("closed_at");
+                    int bucket = Collections.binarySearch(dates, closedOn);
+                    if (bucket >= 0 || from.compareTo(closedOn) >= 0 || to.compareTo(closedOn) <= 0) {
+                        continue;
+                    }
+                    if (isIssueExcluded(issue, null)) {
+                        out.println("Skipping issue (excluded): " + issue.getString("title"));
+                        continue;
+                    }
+                    kept.add(issue);
+                    keptBuckets.add(-bucket - 2);
+                }
+                streamingEnricher.enrich(kept);
+                for (int idx = 0; idx < kept.size(); idx++) {
+                    buckets.add(keptBuckets.get(idx), kept.get(idx));
+                }
+            });
+
+            // One file per release.
+            for (int bucket = 0; bucket < buckets.getBucketCount(); bucket++) {
+                checkCancelled();
+                String tag = cumulativeTags.get(bucket + 1);
+                File outFile = new File(outputDir, "release-notes-" + tag + ".md");
+                out.println("Writing " + buckets.size(bucket) + " issues for release " + tag + " to: " + outFile.getAbsolutePath());
+                try (Writer writer = Files.newBufferedWriter(outFile.toPath(), StandardCharsets.UTF_8)) {
+                    writer.append("This represents the official release of " + repoToName() + ", version " + tag + ".\n\n");
+                    writer.append("The following issues have been resolved in this release:\n\n");
+                    Map<String, Integer> contributions = new HashMap<>();
+                    writeIssues(writer, buckets.get(bucket), contributions);
+                    writeContributors(writer, contributions, "this release");
+                }
+            }
+
+            // One cumulative file, newest release first.
+            String fromTag = cumulativeTags.get(0);
+            String toTag = cumulativeTags.get(cumulativeTags.size() - 1);
+            File outFile = new File(outputDir, "release-notes-" + fromTag + "-to-" + toTag + ".md");
+            out.println("Writing cumulative release notes to: " + outFile.getAbsolutePath());
+            try (Writer writer = Files.newBufferedWriter(outFile.toPath(), StandardCharsets.UTF_8)) {
+                writer.append("The following issues have been resolved in " + repoToName() + " since version " + fromTag
+                        + ", up to and including version " + toTag + ":\n");
+                Map<String, Integer> contributions = new HashMap<>();
+                for (int bucket = buckets.getBucketCount() - 1; bucket >= 0; bucket--) {
+                    checkCancelled();
+                    writer.append("\n## " + cumulativeTags.get(bucket + 1) + "\n\n");
+                    writeIssues(writer, buckets.get(bucket), contributions);
+                }
+                writeContributors(writer, contributions, "these releases");
+            }
         }
+
+        out.println("=========================================");
+        out.println("All Done!");
+        out.println("=========================================");
     }
 
     /**
@@ -148,218 +310,179 @@ public class ReleaseTool {
         String releaseArtifactSig = releaseArtifactSigFile.getName();
 
         if (!releaseArtifactFile.isFile()) {
-            System.err.println("Missing file: " + releaseArtifactFile.getAbsolutePath());
-            System.exit(1);
+            throw new Exception("Missing file: " + releaseArtifactFile.getAbsolutePath());
         }
         if (!releaseArtifactSigFile.isFile()) {
-            System.err.println("Missing file: " + releaseArtifactSigFile.getAbsolutePath());
-            System.exit(1);
+            throw new Exception("Missing file: " + releaseArtifactSigFile.getAbsolutePath());
         }
 
-        System.out.println("=========================================");
-        System.out.println("Releasing Apicurio Studio");
-        System.out.println("Creating Release: " + releaseTag);
-        System.out.println("Previous Release: " + oldReleaseTag);
-        System.out.println("            Name: " + releaseName);
-        System.out.println("        Artifact: " + releaseArtifact);
-        System.out.println("     Pre-Release: " + isPrerelease);
-        System.out.println("=========================================");
-
-        String releaseNotes = "";
+        out.println("=========================================");
+        out.println("Releasing Apicurio Studio");
+        out.println("Creating Release: " + releaseTag);
+        out.println("Previous Release: " + oldReleaseTag);
+        out.println("            Name: " + releaseName);
+        out.println("        Artifact: " + releaseArtifact);
+        out.println("     Pre-Release: " + isPrerelease);
+        out.println("=========================================");
 
         // Step #1 - Generate Release Notes
         //   * Grab info about the previous release (extract publish date)
         //   * Query all Issues for ones closed since that date
         //   * Generate Release Notes from the resulting Issues
-        try {
-            List<JSONObject> issues = getIssuesForRelease(org, "apicurio-studio", "v" + oldReleaseTag, null, null);
-            System.out.println("Found " + issues.size() + " issues closed in release " + releaseTag);
-
-            String suffix = "For more information, please see the Apicurio Studio's official project site:\r\n" + 
-                    "\r\n" + 
-                    "* [General Information](http://www.apicur.io/)\r\n" + 
-                    "* [Download/Quickstart](http://www.apicur.io/download)\r\n" + 
-                    "* [Blog](http://www.apicur.io/blog)";
-            releaseNotes = generateReleaseNotes(releaseName, releaseTag, issues, suffix);
-            System.out.println("------------ Release Notes --------------");
-            System.out.println(releaseNotes);
-            System.out.println("-----------------------------------------");
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(1);
-        }
-
-        String assetUploadUrl = null;
+        checkCancelled();
+        List<JSONObject> issues = getIssuesForRelease(org, "apicurio-studio", "v" + oldReleaseTag, null, null);
+        out.println("Found " + issues.size() + " issues closed in release " + releaseTag);
+        enricher.enrich(issues);
+
+        String suffix = "For more information, please see the Apicurio Studio's official project site:\r\n" + 
+                "\r\n" + 
+                "* [General Information](http://www.apicur.io/)\r\n" + 
+                "* [Download/Quickstart](http://www.apicur.io/download)\r\n" + 
+                "* [Blog](http://www.apicur.io/blog)";
+        String releaseNotes = generateReleaseNotes(releaseName, releaseTag, issues, suffix);
+        out.println("------------ Release Notes --------------");
+        out.println(releaseNotes);
+        out.println("-----------------------------------------");
 
         // Step #2 - Create a GitHub Release
-        try {
-            assetUploadUrl = createRelease(org, "apicurio-studio", releaseName, isPrerelease, "v" + releaseTag, releaseNotes);
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(1);
-        }
+        checkCancelled();
+        String assetUploadUrl = createRelease(org, "apicurio-studio", releaseName, isPrerelease, "v" + releaseTag, releaseNotes);
 
         // Step #3 - Upload Release Artifact (zip file)
-        System.out.println("\nUploading Quickstart Artifact: " + releaseArtifact);
-        try {
-            uploadReleaseArtifact(releaseArtifactFile, releaseArtifact, assetUploadUrl, "application/zip");
-            Thread.sleep(1000);
-            uploadReleaseArtifact(releaseArtifactSigFile, releaseArtifactSig, assetUploadUrl, "text/plain");
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(1);
-        }
+        checkCancelled();
+        out.println("\nUploading Quickstart Artifact: " + releaseArtifact);
+        uploadReleaseArtifact(releaseArtifactFile, releaseArtifact, assetUploadUrl, "application/zip");
+        Thread.sleep(1000);
+        uploadReleaseArtifact(releaseArtifactSigFile, releaseArtifactSig, assetUploadUrl, "text/plain");
         
         Thread.sleep(1000);
 
         // Step #4 - Download Latest Release JSON for inclusion in the project web site
-        try {
-            System.out.println("Getting info about the release.");
-            HttpResponse<JsonNode> response = Unirest.get("https://api.github.com/repos/apicurio/apicurio-studio/releases/latest")
-                    .header("Accept", "application/json").asJson();
-            if (response.getStatus() != 200) {
-                throw new Exception("Failed to get release info: " + response.getStatusText());
-            }
-            JsonNode body = response.getBody();
-            String publishedDate = body.getObject().getString("published_at");
-            if (publishedDate == null) {
-                throw new Exception("Could not find Published Date for release.");
-            }
-            String fname = publishedDate.replace(':', '-');
-            File outFile = new File(outputDir, fname + ".json");
-            
-            System.out.println("Writing latest release info to: " + outFile.getAbsolutePath());
-            
-            String output = body.getObject().toString(4);
-            try (FileOutputStream fos = new FileOutputStream(outFile)) {
-                fos.write(output.getBytes("UTF-8"));
-                fos.flush();
-            }
-
-            System.out.println("Release info successfully written.");
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(1);
+        checkCancelled();
+        out.println("Getting info about the release.");
+        HttpResponse<JsonNode> response = requests.get(() -> Unirest.get("https://api.github.com/repos/apicurio/apicurio-studio/releases/latest")
+                .header("Accept", "application/json"));
+        if (response.getStatus() != 200) {
+            throw new Exception("Failed to get release info: " + response.getStatusText());
+        }
+        JsonNode body = response.getBody();
+        String publishedDate = body.getObject().getString("published_at");
+        if (publishedDate == null) {
+            throw new Exception("Could not find Published Date for release.");
         }
+        String fname = publishedDate.replace(':', '-');
+        File outFile = new File(outputDir, fname + ".json");
+        
+        out.println("Writing latest release info to: " + outFile.getAbsolutePath());
         
-        System.out.println("=========================================");
-        System.out.println("All Done!");
-        System.out.println("=========================================");
+        String output = body.getObject().toString(4);
+        try (FileOutputStream fos = new FileOutputStream(outFile)) {
+            fos.write(output.getBytes("UTF-8"));
+            fos.flush();
+        }
+
+        out.println("Release info successfully written.");
+        
+        out.println("=========================================");
+        out.println("All Done!");
+        out.println("=========================================");
     }
 
     /**
      * Release the apicurito repo.
      */
     private void releaseApicurito() throws Exception {
-        System.out.println("=========================================");
-        System.out.println("Releasing Apicurito");
-        System.out.println("Creating Release: " + releaseTag);
-        System.out.println("Previous Release: " + oldReleaseTag);
-        System.out.println("            Name: " + releaseName);
-        System.out.println("     Pre-Release: " + isPrerelease);
-        System.out.println("=========================================");
-
-        String releaseNotes = "";
+        out.println("=========================================");
+        out.println("Releasing Apicurito");
+        out.println("Creating Release: " + releaseTag);
+        out.println("Previous Release: " + oldReleaseTag);
+        out.println("            Name: " + releaseName);
+        out.println("     Pre-Release: " + isPrerelease);
+        out.println("=========================================");
 
         // Step #1 - Generate Release Notes
         //   * Grab info about the previous release (extract publish date)
         //   * Query all Issues for ones closed since that date
         //   * Generate Release Notes from the resulting Issues
-        try {
-            // Grab closed issues from Apicurito itself
-            List<JSONObject> issues = getIssuesForRelease(org, "apicurito", oldReleaseTag, null, null);
-
-            // Also grab issues from Apicurio Studio (editor only)
-            String fromEditorVersion = getPackageDependencyVersion(org, "apicurito", "ui/package.json", oldReleaseTag, "apicurio-design-studio");
-            String toEditorVersion = getPackageDependencyVersion(org, "apicurito", "ui/package.json", releaseTag, "apicurio-design-studio");
-            if (!fromEditorVersion.equals(toEditorVersion)) {
-                System.out.println("---");
-                System.out.println("Apicurio editor upgraded from version " + fromEditorVersion + " to version "
-                                + toEditorVersion + " - including studio editor issues in release notes.");
-                System.out.println("---");
-                String fromTag = "v" + fromEditorVersion + ".Final";
-                String toTag = "v" + toEditorVersion + ".Final";
-                List<JSONObject> editorIssues = getIssuesForRelease(org, "apicurio-studio", fromTag, toTag, Collections.singleton("editor"));
-                issues.addAll(editorIssues);
-            } else {
-                System.out.println("---");
-                System.out.println("No Apicurio editor version upgrade detected.  Version is: " + fromEditorVersion);
-                System.out.println("---");
-            }
+        checkCancelled();
+        // Grab closed issues from Apicurito itself
+        List<JSONObject> issues = getIssuesForRelease(org, "apicurito", oldReleaseTag, null, null);
+
+        // Also grab issues from Apicurio Studio (editor only)
+        String fromEditorVersion = getPackageDependencyVersion(org, "apicurito", "ui/package.json", oldReleaseTag, "apicurio-design-studio");
+        String toEditorVersion = getPackageDependencyVersion(org, "apicurito", "ui/package.json", releaseTag, "apicurio-design-studio");
+        if (!fromEditorVersion.equals(toEditorVersion)) {
+            out.println("---");
+            out.println("Apicurio editor upgraded from version " + fromEditorVersion + " to version "
+                            + toEditorVersion + " - including studio editor issues in release notes.");
+            out.println("---");
+            String fromTag = "v" + fromEditorVersion + ".Final";
+            String toTag = "v" + toEditorVersion + ".Final";
+            List<JSONObject> editorIssues = getIssuesForRelease(org, "apicurio-studio", fromTag, toTag, Collections.singleton("editor"));
+            issues.addAll(editorIssues);
+        } else {
+            out.println("---");
+            out.println("No Apicurio editor version upgrade detected.  Version is: " + fromEditorVersion);
+            out.println("---");
+        }
 
-            System.out.println("Found " + issues.size() + " issues closed in release " + releaseTag);
+        out.println("Found " + issues.size() + " issues closed in release " + releaseTag);
+        enricher.enrich(issues);
 
-            String suffix = "";
-            releaseNotes = generateReleaseNotes(releaseName, releaseTag, issues, suffix);
-            System.out.println("------------ Release Notes --------------");
-            System.out.println(releaseNotes);
-            System.out.println("-----------------------------------------");
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(1);
-        }
+        String suffix = "";
+        String releaseNotes = generateReleaseNotes(releaseName, releaseTag, issues, suffix);
+        out.println("------------ Release Notes --------------");
+        out.println(releaseNotes);
+        out.println("-----------------------------------------");
 
         // Step #2 - Create a GitHub Release
-        try {
-            createRelease(org, "apicurito", releaseName, isPrerelease, releaseTag, releaseNotes);
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(1);
-        }
+        checkCancelled();
+        createRelease(org, "apicurito", releaseName, isPrerelease, releaseTag, releaseNotes);
 
-        System.out.println("=========================================");
-        System.out.println("All Done!");
-        System.out.println("=========================================");        
+        out.println("=========================================");
+        out.println("All Done!");
+        out.println("=========================================");        
     }
 
     /**
      * Release the Apicurio Registry repo.
      */
     private void releaseRegistry() throws Exception {
-        System.out.println("=========================================");
-        System.out.println("Releasing Apicurio Registry");
-        System.out.println("Creating Release: " + releaseTag);
-        System.out.println("Previous Release: " + oldReleaseTag);
-        System.out.println("            Name: " + releaseName);
-        System.out.println("     Pre-Release: " + isPrerelease);
-        System.out.println("=========================================");
-
-        String releaseNotes = "";
+        out.println("=========================================");
+        out.println("Releasing Apicurio Registry");
+        out.println("Creating Release: " + releaseTag);
+        out.println("Previous Release: " + oldReleaseTag);
+        out.println("            Name: " + releaseName);
+        out.println("     Pre-Release: " + isPrerelease);
+        out.println("=========================================");
 
         // Step #1 - Generate Release Notes
         //   * Grab info about the previous release (extract publish date)
         //   * Query all Issues for ones closed since that date
         //   * Generate Release Notes from the resulting Issues
         //////////////////////////////////////////////////
-        try {
-            // Grab closed issues from Apicurito itself
-            List<JSONObject> issues = getIssuesForRelease(org, "apicurio-registry", oldReleaseTag, null, null);
-            System.out.println("Found " + issues.size() + " issues closed in release " + releaseTag);
-
-            String suffix = "";
-            releaseNotes = generateReleaseNotes(releaseName, releaseTag, issues, suffix);
-            System.out.println("------------ Release Notes --------------");
-            System.out.println(releaseNotes);
-            System.out.println("-----------------------------------------");
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(1);
-        }
+        checkCancelled();
+        // Grab closed issues from Apicurito itself
+        List<JSONObject> issues = getIssuesForRelease(org, "apicurio-registry", oldReleaseTag, null, null);
+        out.println("Found " + issues.size() + " issues closed in release " + releaseTag);
+        enricher.enrich(issues);
+
+        String suffix = "";
+        String releaseNotes = generateReleaseNotes(releaseName, releaseTag, issues, suffix);
+        out.println("------------ Release Notes --------------");
+        out.println(releaseNotes);
+        out.println("-----------------------------------------");
 
         
-        String assetUploadUrl = null;
         // Step #2 - Create a GitHub Release
         //////////////////////////////////////////////////
-        try {
-            assetUploadUrl = createRelease(org, "apicurio-registry", releaseName, isPrerelease, releaseTag, releaseNotes);
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(1);
-        }
+        checkCancelled();
+        String assetUploadUrl = createRelease(org, "apicurio-registry", releaseName, isPrerelease, releaseTag, releaseNotes);
 
         // Step #3 - Upload Release Artifact (zip file)
         //////////////////////////////////////////////////
         if (artifact != null) {
+            checkCancelled();
             File releaseArtifactFile = new File(artifact);
             File releaseArtifactSigFile = new File(artifact + ".asc");
     
@@ -367,27 +490,20 @@ public class ReleaseTool {
             String releaseArtifactSig = releaseArtifactSigFile.getName();
     
             if (!releaseArtifactFile.isFile()) {
-                System.err.println("Missing file: " + releaseArtifactFile.getAbsolutePath());
-                System.exit(1);
+                throw new Exception("Missing file: " + releaseArtifactFile.getAbsolutePath());
             }
             if (!releaseArtifactSigFile.isFile()) {
-                System.err.println("Missing file: " + releaseArtifactSigFile.getAbsolutePath());
-                System.exit(1);
-            }
-            System.out.println("\nUploading Artifact(s): " + releaseArtifact);
-            try {
-                uploadReleaseArtifact(releaseArtifactFile, releaseArtifact, assetUploadUrl, "application/zip");
-                Thread.sleep(1000);
-                uploadReleaseArtifact(releaseArtifactSigFile, releaseArtifactSig, assetUploadUrl, "text/plain");
-            } catch (Exception e) {
-                e.printStackTrace();
-                System.exit(1);
+                throw new Exception("Missing file: " + releaseArtifactSigFile.getAbsolutePath());
             }
+            out.println("\nUploading Artifact(s): " + releaseArtifact);
+            uploadReleaseArtifact(releaseArtifactFile, releaseArtifact, assetUploadUrl, "application/zip");
+            Thread.sleep(1000);
+            uploadReleaseArtifact(releaseArtifactSigFile, releaseArtifactSig, assetUploadUrl, "text/plain");
         }
 
-        System.out.println("=========================================");
-        System.out.println("All Done!");
-        System.out.println("=========================================");        
+        out.println("=========================================");
+        out.println("All Done!");
+        out.println("=========================================");        
     }
 
     /**
@@ -401,18 +517,20 @@ public class ReleaseTool {
      */
     private String getPackageDependencyVersion(String org, String repo, String path, String tag,
             String dependencyName) throws Exception {
-        String contentUrl = "https://raw.githubusercontent.com/" + org + "/" + repo + "/" + tag + "/" + path;
+        return cache.getDependencyVersion(org, repo, path, tag, dependencyName, () -> {
+            String contentUrl = "https://raw.githubusercontent.com/" + org + "/" + repo + "/" + tag + "/" + path;
 
-        HttpResponse<JsonNode> response = Unirest.get(contentUrl).header("Accept", "*/*").asJson();
-        if (response.getStatus() != 200) {
-            throw new Exception("Failed to get release info: " + response.getStatusText());
-        }
-        JsonNode body = response.getBody();
-        String version = body.getObject().getJSONObject("dependencies").getString(dependencyName);
-        if (version == null) {
-            throw new Exception("Could not find version info for dependency: " + dependencyName);
-        }
-        return version;
+            HttpResponse<JsonNode> response = requests.get(() -> Unirest.get(contentUrl).header("Accept", "*/*"));
+            if (response.getStatus() != 200) {
+                throw new Exception("Failed to get release info: " + response.getStatusText());
+            }
+            JsonNode body = response.getBody();
+            String version = body.getObject().getJSONObject("dependencies").getString(dependencyName);
+            if (version == null) {
+                throw new Exception("Could not find version info for dependency: " + dependencyName);
+            }
+            return version;
+        });
     }
 
     /**
@@ -420,19 +538,17 @@ public class ReleaseTool {
      * @param releaseArtifact
      * @param assetUploadUrl
      * @throws Exception
-     * @throws UnirestException
      */
     private void uploadReleaseArtifact(File releaseArtifactFile, String releaseArtifact,
-            String assetUploadUrl, String assetContentType) throws Exception, UnirestException {
+            String assetUploadUrl, String assetContentType) throws Exception {
         String artifactUploadUrl = createUploadUrl(assetUploadUrl, releaseArtifact);
         byte [] artifactData = loadArtifactData(releaseArtifactFile);
-        System.out.println("Uploading artifact asset: " + artifactUploadUrl);
-        HttpResponse<JsonNode> response = Unirest.post(artifactUploadUrl)
+        out.println("Uploading artifact asset: " + artifactUploadUrl);
+        HttpResponse<JsonNode> response = requests.upload(() -> Unirest.post(artifactUploadUrl)
                 .header("Accept", "application/json")
                 .header("Content-Type", assetContentType)
                 .header("Authorization", "token " + githubPAT)
-                .body(artifactData)
-                .asJson();
+                .body(artifactData));
         if (response.getStatus() != 201) {
             throw new Exception("Failed to upload asset: " + releaseArtifact, new Exception(response.getStatus() + "::" + response.getStatusText()));
         }
@@ -445,27 +561,26 @@ public class ReleaseTool {
      * @param isPrerelease
      * @param releaseTag
      * @param releaseNotes
-     * @throws UnirestException
      * @throws Exception
      */
     private String createRelease(String org, String repo, String releaseName, boolean isPrerelease, String releaseTag,
-            String releaseNotes) throws UnirestException, Exception {
+            String releaseNotes) throws Exception {
         String assetUploadUrl;
-        System.out.println("\nCreating GitHub Release " + releaseTag);
+        out.println("\nCreating GitHub Release " + releaseTag);
         JSONObject body = new JSONObject();
         body.put("tag_name", releaseTag);
         body.put("name", releaseName);
         body.put("body", releaseNotes);
         body.put("prerelease", isPrerelease);
 
-        HttpResponse<JsonNode> response = Unirest.post("https://api.github.com/repos/" + org + "/" + repo + "/releases")
+        HttpResponse<JsonNode> response = requests.send(() -> Unirest.post("https://api.github.com/repos/" + org + "/" + repo + "/releases")
                 .header("Accept", "application/json")
                 .header("Content-Type", "application/json")
                 .header("Authorization", "token " + githubPAT)
-                .body(body).asJson();
+                .body(body));
         if (response.getStatus() != 201) {
-            System.out.println("!!! ERROR !!!");
-            System.out.println("!!! " + response.getBody());
+            out.println("!!! ERROR !!!");
+            out.println("!!! " + response.getBody());
             throw new Exception("Failed to create release in GitHub: " + response.getStatusText());
         }
 
@@ -485,29 +600,34 @@ public class ReleaseTool {
      * @return
      */
     private String getReleaseDate(String org, String repo, String releaseTag) throws Exception {
-        System.out.println("Getting release data for " + org + "/" + repo + ":" + releaseTag);
-        HttpResponse<JsonNode> response = Unirest.get("https://api.github.com/repos/" + org + "/" + repo + "/releases/tags/" + releaseTag)
-                .header("Accept", "application/json").header("Authorization", "token " + githubPAT).asJson();
-        if (response.getStatus() != 200) {
-            throw new Exception("Failed to get release info: " + response.getStatusText());
-        }
-        JsonNode body = response.getBody();
-        String publishedDate = body.getObject().getString("created_at");
-        if (publishedDate == null) {
-            throw new Exception("Could not find Published Date for release " + releaseTag);
-        }
-        System.out.println("Release " + releaseTag + " was published on " + publishedDate);
+        String publishedDate = cache.getReleaseDate(org, repo, releaseTag, () -> {
+            out.println("Getting release data for " + org + "/" + repo + ":" + releaseTag);
+            HttpResponse<JsonNode> response = requests.get(() -> Unirest.get("https://api.github.com/repos/" + org + "/" + repo + "/releases/tags/" + releaseTag)
+                    .header("Accept", "application/json").header("Authorization", "token " + githubPAT));
+            if (response.getStatus() != 200) {
+                throw new Exception("Failed to get release info: " + response.getStatusText());
+            }
+            JsonNode body = response.getBody();
+            String date = body.getObject().getString("created_at");
+            if (date == null) {
+                throw new Exception("Could not find Published Date for release " + releaseTag);
+            }
+            return date;
+        });
+        out.println("Release " + releaseTag + " was published on " + publishedDate);
         return publishedDate;
     }
 
     /**
-     * Generates the release notes for a release.
+     * Generates the release notes for a release.  Each issue credits its contributors and links
+     * the pull requests that fixed it (see {@link IssueEnricher}), and everyone is thanked in a
+     * contributors section at the end.
      * @param releaseName
      * @param releaseTag
      * @param issues
      */
     private String generateReleaseNotes(String releaseName, String releaseTag, List<JSONObject> issues, String suffix) {
-        System.out.println("Generating Release Notes");
+        out.println("Generating Release Notes");
 
         StringBuilder builder = new StringBuilder();
 
@@ -516,10 +636,14 @@ public class ReleaseTool {
         builder.append(".\n\n");
         builder.append("The following issues have been resolved in this release:\n\n");
 
-        issues.forEach(issue -> {
-            builder.append(String.format("* [#%d](%s) %s", issue.getInt("number"), issue.getString("html_url"), issue.getString("title")));
-            builder.append("\n");
-        });
+        Map<String, Integer> contributions = new HashMap<>();
+        try {
+            writeIssues(builder, issues, contributions);
+            writeContributors(builder, contributions, "this release");
+        } catch (IOException e) {
+            // Appending to a StringBuilder never fails.
+            throw new UncheckedIOException(e);
+        }
 
         builder.append("\n\n");
         builder.append(suffix);
@@ -527,6 +651,51 @@ public class ReleaseTool {
         return builder.toString();
     }
 
+    /**
+     * Writes one release notes line per issue, counting each contributor's contributions.
+     * @param writer
+     * @param issues
+     * @param contributions
+     * @throws IOException
+     */
+    private void writeIssues(Appendable writer, Iterable<JSONObject> issues, Map<String, Integer> contributions) throws IOException {
+        for (JSONObject issue : issues) {
+            writer.append(String.format("* [#%d](%s) %s", issue.getInt("number"), issue.getString("html_url"), issue.getString("title")));
+            List<JSONObject> pullRequests = IssueEnricher.getLinkedPullRequests(issue);
+            if (!pullRequests.isEmpty() && !issue.has("pull_request")) {
+                writer.append(pullRequests.stream()
+                        .map(pr -> String.format("[#%d](%s)", pr.getInt("number"), pr.getString("html_url")))
+                        .collect(Collectors.joining(", ", " (fixed by ", ")")));
+            }
+            Set<String> contributors = IssueEnricher.getContributors(issue);
+            if (!contributors.isEmpty()) {
+                writer.append(contributors.stream().map(login -> "@" + login).collect(Collectors.joining(", ", " - ", "")));
+                contributors.forEach(login -> contributions.merge(login, 1, Integer::sum));
+            }
+            writer.append("\n");
+        }
+    }
+
+    /**
+     * Writes the contributors section of the release notes.
+     * @param writer
+     * @param contributions
+     * @param scope e.g. "this release"
+     * @throws IOException
+     */
+    private void writeContributors(Appendable writer, Map<String, Integer> contributions, String scope) throws IOException {
+        if (contributions.isEmpty()) {
+            return;
+        }
+        writer.append("\nThanks to everyone who contributed to " + scope + ":\n\n");
+        List<Map.Entry<String, Integer>> sorted = contributions.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .collect(Collectors.toList());
+        for (Map.Entry<String, Integer> entry : sorted) {
+            writer.append(String.format("* @%s (%d)\n", entry.getKey(), entry.getValue()));
+        }
+    }
+
     /**
      * Returns all issues (as JSON nodes) that were closed between two releases.  If no "to" release tag is
      * given, then "now" is assumed.
@@ -544,19 +713,7 @@ public class ReleaseTool {
         final String from = getReleaseDate(org, repo, fromReleaseTag);
         final String to = toReleaseTag == null ? null : getReleaseDate(org, repo, toReleaseTag);
 
-        String currentPageUrl = "https://api.github.com/repos/" + org + "/" + repo + "/issues";
-        int pageNum = 1;
-        while (currentPageUrl != null) {
-            System.out.println("Querying page " + pageNum + " of issues.");
-            HttpResponse<JsonNode> response = Unirest.get(currentPageUrl)
-                    .queryString("since", from)
-                    .queryString("state", "closed")
-                    .header("Accept", "application/json")
-                    .header("Authorization", "token " + githubPAT).asJson();
-            if (response.getStatus() != 200) {
-                throw new Exception("Failed to list Issues: " + response.getStatusText());
-            }
-            JSONArray issueNodes = response.getBody().getArray();
+        forEachIssuePage(org, repo, from, issueNodes -> {
             issueNodes.forEach(issueNode -> {
                 JSONObject issue = (JSONObject) issueNode;
                 String closedOn = issue.getString("closed_at");
@@ -564,15 +721,55 @@ public class ReleaseTool {
                     if (!isIssueExcluded(issue, requiredTags)) {
                         rval.add(issue);
                     } else {
-                        System.out.println("Skipping issue (excluded): " + issue.getString("title"));
+                        out.println("Skipping issue (excluded): " + issue.getString("title"));
                     }
                 } else {
-                    System.out.println("Skipping issue (old release): " + issue.getString("title"));
+                    out.println("Skipping issue (old release): " + issue.getString("title"));
                 }
             });
+        });
 
-            System.out.println("Processing page " + pageNum + " of issues.");
-            System.out.println("    Found " + issueNodes.length() + " issues on page.");
+        return rval;
+    }
+
+    /**
+     * Handles one page of issues.
+     */
+    @FunctionalInterface
+    private interface IssuePageHandler {
+        void handle(JSONArray issueNodes) throws Exception;
+    }
+
+    /**
+     * Streams all issues closed since the given date, one page at a time, so that callers
+     * can decide how much of each page to keep.
+     * @param org
+     * @param repo
+     * @param since
+     * @param handler
+     * @throws Exception
+     */
+    private void forEachIssuePage(String org, String repo, String since, IssuePageHandler handler) throws Exception {
+        String currentPageUrl = "https://api.github.com/repos/" + org + "/" + repo + "/issues";
+        int pageNum = 1;
+        while (currentPageUrl != null) {
+            checkCancelled();
+            out.println("Querying page " + pageNum + " of issues.");
+            final String pageUrl = currentPageUrl;
+            HttpResponse<JsonNode> response = requests.get(() -> Unirest.get(pageUrl)
+                    .queryString("since", since)
+                    .queryString("state", "closed")
+                    .queryString("per_page", 100)
+                    .header("Accept", "application/json")
+                    .header("Authorization", "token " + githubPAT));
+            if (response.getStatus() != 200) {
+                throw new Exception("Failed to list Issues: " + response.getStatusText());
+            }
+            JSONArray issueNodes = response.getBody().getArray();
+            handler.handle(issueNodes);
+
+            out.println("Processing page " + pageNum + " of issues.");
+            out.println("    Found " + issueNodes.length() + " issues on page.");
             String allLinks = response.getHeaders().getFirst("Link");
             Map<String, Link> links = Link.parseAll(allLinks);
             if (links.containsKey("next")) {
@@ -582,8 +779,6 @@ public class ReleaseTool {
             }
             pageNum++;
         }
-
-        return rval;
     }
 
     /**
@@ -633,7 +828,7 @@ public class ReleaseTool {
      * @param releaseArtifactFile
      */
     private byte[] loadArtifactData(File releaseArtifactFile) throws Exception {
-        System.out.println("Loading artifact content: " + releaseArtifactFile.getName());
+        out.println("Loading artifact content: " + releaseArtifactFile.getName());
         byte [] buffer = new byte[(int) releaseArtifactFile.length()];
         try (InputStream is = new FileInputStream(releaseArtifactFile)) {
             IOUtils.readFully(is, buffer);
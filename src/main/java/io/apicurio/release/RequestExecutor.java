@@ -0,0 +1,304 @@
+/*
+ * Copyright 2020 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.apicurio.release;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+import com.mashape.unirest.http.async.Callback;
+import com.mashape.unirest.http.exceptions.UnirestException;
+import com.mashape.unirest.request.BaseRequest;
+
+/**
+ * Sends the HTTP requests of a single release.  Every request is bounded by a per-request
+ * timeout and by the overall release deadline.  Idempotent GETs are also hedged: once enough
+ * latencies have been observed, a GET that has not answered within the configured latency
+ * percentile is sent a second time and whichever response arrives first is used.
+ */
+public class RequestExecutor {
+
+    private static final int MIN_SAMPLES_BEFORE_HEDGING = 5;
+    private static final int MAX_SAMPLES = 256;
+
+    private final long requestTimeout;
+    private final long deadlineSeconds;
+    private final int hedgePercentile;
+
+    private final long[] latencies = new long[MAX_SAMPLES];
+    private int latencyCount;
+
+    private final AtomicInteger getCount = new AtomicInteger();
+    private final AtomicInteger hedgeCount = new AtomicInteger();
+    private final AtomicInteger hedgeWinCount = new AtomicInteger();
+    private final AtomicLong hedgeDelayMillis = new AtomicLong();
+
+    private volatile long deadline = Long.MAX_VALUE;
+
+    /**
+     * Constructor.
+     * @param requestTimeout max time (in ms) to wait for any single request
+     * @param deadlineSeconds max time (in seconds) for the whole release, or 0 for no deadline
+     * @param hedgePercentile latency percentile after which GETs are hedged, or 0 to disable hedging
+     */
+    public RequestExecutor(long requestTimeout, long deadlineSeconds, int hedgePercentile) {
+        this.requestTimeout = requestTimeout;
+        this.deadlineSeconds = deadlineSeconds;
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    /**
+     * Starts the release deadline clock.
+     */
+    public void start() {
+        if (deadlineSeconds > 0) {
+            deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(deadlineSeconds);
+        }
+    }
+
+    /**
+     * Throws if the release deadline has passed.
+     * @throws TimeoutException
+     */
+    public void checkDeadline() throws TimeoutException {
+        if (System.currentTimeMillis() >= deadline) {
+            throw new TimeoutException("Release deadline of " + deadlineSeconds + "s exceeded.");
+        }
+    }
+
+    /**
+     * Sends an idempotent request, hedging it if it is slow.  The supplier is called once per
+     * attempt, so it must build a fresh request each time.
+     * @param request
+     * @throws Exception
+     */
+    public HttpResponse<JsonNode> get(Supplier<? extends BaseRequest> request) throws Exception {
+        getCount.incrementAndGet();
+        long timeout = timeout(requestTimeout);
+        long hedgeDelay = hedgeDelay();
+
+        long start = System.currentTimeMillis();
+        InFlight primary = new InFlight(request.get());
+        if (hedgeDelay < 0 || hedgeDelay >= timeout) {
+            HttpResponse<JsonNode> response = await(primary.result, timeout, primary, null);
+            recordLatency(System.currentTimeMillis() - start);
+            return response;
+        }
+
+        try {
+            HttpResponse<JsonNode> response = primary.result.get(hedgeDelay, TimeUnit.MILLISECONDS);
+            recordLatency(System.currentTimeMillis() - start);
+            return response;
+        } catch (TimeoutException e) {
+            // Slower than usual - send the hedge below.
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            primary.cancel();
+            throw e;
+        }
+
+        hedgeCount.incrementAndGet();
+        hedgeDelayMillis.addAndGet(hedgeDelay);
+        InFlight hedge = new InFlight(request.get());
+        HttpResponse<JsonNode> response = await(firstSuccessful(primary.result, hedge.result),
+                timeout - hedgeDelay, primary, hedge);
+        long wonAt = System.currentTimeMillis();
+
+        // Either way, sample the primary's latency: when the hedge wins, the time the primary had
+        // been waiting is a lower bound of its real latency.  Sampling only the (fast) hedge
+        // would skew the learned percentile and make hedging fire more and more often.
+        recordLatency(wonAt - start);
+        if (hedge.result.isDone() && !hedge.result.isCompletedExceptionally() && hedge.result.getNow(null) == response) {
+            hedgeWinCount.incrementAndGet();
+            primary.cancel();
+        } else {
+            hedge.cancel();
+        }
+        return response;
+    }
+
+    /**
+     * Sends a non-idempotent request (never hedged), bounded by the per-request timeout.
+     * @param request
+     * @throws Exception
+     */
+    public HttpResponse<JsonNode> send(Supplier<? extends BaseRequest> request) throws Exception {
+        InFlight inFlight = new InFlight(request.get());
+        return await(inFlight.result, timeout(requestTimeout), inFlight, null);
+    }
+
+    /**
+     * Sends an upload request.  Uploads can legitimately take much longer than an API call,
+     * so they are only bounded by the release deadline.
+     * @param request
+     * @throws Exception
+     */
+    public HttpResponse<JsonNode> upload(Supplier<? extends BaseRequest> request) throws Exception {
+        InFlight inFlight = new InFlight(request.get());
+        return await(inFlight.result, timeout(Long.MAX_VALUE), inFlight, null);
+    }
+
+    /**
+     * Prints a summary of how often hedging fired, how often the hedge answered first, and the
+     * total time waited before hedges were sent.  The losing request is cancelled, so how long
+     * it would have taken (i.e. the real time saved) is not known.
+     * @param out
+     */
+    public void printStats(PrintStream out) {
+        out.println("Hedged " + hedgeCount.get() + " of " + getCount.get() + " GET requests; hedge answered first "
+                + hedgeWinCount.get() + " time(s); total hedge delay " + hedgeDelayMillis.get() + "ms.");
+    }
+
+    /**
+     * @return the number of GET requests sent (not counting hedges)
+     */
+    public int getGetCount() {
+        return getCount.get();
+    }
+
+    /**
+     * @return the number of hedge requests sent
+     */
+    public int getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    /**
+     * @return the number of times a hedge answered before the original request
+     */
+    public int getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    /**
+     * @return the total time (in ms) waited before hedge requests were sent
+     */
+    public long getHedgeDelayMillis() {
+        return hedgeDelayMillis.get();
+    }
+
+    /**
+     * Returns how long to wait for a request: the smaller of the given timeout and the time
+     * left before the release deadline.
+     */
+    private long timeout(long max) throws TimeoutException {
+        checkDeadline();
+        return Math.min(max, deadline - System.currentTimeMillis());
+    }
+
+    /**
+     * Returns how long to wait before hedging a GET, or -1 if not (yet) hedging.
+     */
+    private synchronized long hedgeDelay() {
+        if (hedgePercentile <= 0 || latencyCount < MIN_SAMPLES_BEFORE_HEDGING) {
+            return -1;
+        }
+        int size = Math.min(latencyCount, MAX_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, size);
+        Arrays.sort(sorted);
+        int idx = (int) Math.ceil(hedgePercentile / 100.0 * size) - 1;
+        return sorted[Math.max(0, Math.min(idx, size - 1))];
+    }
+
+    private synchronized void recordLatency(long millis) {
+        latencies[latencyCount % MAX_SAMPLES] = millis;
+        latencyCount++;
+    }
+
+    private static HttpResponse<JsonNode> await(CompletableFuture<HttpResponse<JsonNode>> result, long timeout,
+            InFlight primary, InFlight hedge) throws Exception {
+        try {
+            return result.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (TimeoutException | InterruptedException e) {
+            primary.cancel();
+            if (hedge != null) {
+                hedge.cancel();
+            }
+            if (e instanceof TimeoutException) {
+                throw new TimeoutException("No response within " + timeout + "ms.");
+            }
+            throw e;
+        }
+    }
+
+    private static CompletableFuture<HttpResponse<JsonNode>> firstSuccessful(CompletableFuture<HttpResponse<JsonNode>> a,
+            CompletableFuture<HttpResponse<JsonNode>> b) {
+        CompletableFuture<HttpResponse<JsonNode>> rval = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<HttpResponse<JsonNode>> f : Arrays.asList(a, b)) {
+            f.whenComplete((response, error) -> {
+                if (error == null) {
+                    rval.complete(response);
+                } else if (failures.incrementAndGet() == 2) {
+                    rval.completeExceptionally(error);
+                }
+            });
+        }
+        return rval;
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof Exception ? (Exception) cause : e;
+    }
+
+    /**
+     * A request that has been sent and has not necessarily answered yet.
+     */
+    private static class InFlight {
+
+        private final CompletableFuture<HttpResponse<JsonNode>> result = new CompletableFuture<>();
+        private final Future<HttpResponse<JsonNode>> request;
+
+        InFlight(BaseRequest request) {
+            this.request = request.asJsonAsync(new Callback<JsonNode>() {
+                @Override
+                public void completed(HttpResponse<JsonNode> response) {
+                    result.complete(response);
+                }
+
+                @Override
+                public void failed(UnirestException e) {
+                    result.completeExceptionally(e);
+                }
+
+                @Override
+                public void cancelled() {
+                    result.cancel(false);
+                }
+            });
+        }
+
+        void cancel() {
+            request.cancel(true);
+        }
+
+    }
+
+}